@@ -16,6 +16,12 @@ repositories {
 
 dependencies {
     api("org.apache.maven:maven-model:3.9.4")
+    testImplementation(platform("org.junit:junit-bom:5.10.0"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 java {
@@ -1,5 +1,6 @@
 package com.alazeprt;
 
+import org.apache.maven.model.Exclusion;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
@@ -7,8 +8,14 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,6 +26,7 @@ import java.util.regex.Pattern;
  */
 public abstract class Dependency {
     private final String dependency;
+    private final List<Dependency> directDependencies = new ArrayList<>();
 
     /**
      * Initializes a dependency.
@@ -29,12 +37,18 @@ public abstract class Dependency {
         this.dependency = dependency;
     }
 
-    private List<Dependency> getSubDependencies(List<Dependency> list) throws IOException {
+    private List<Dependency> collectSubDependencies(List<String> exclusions) throws IOException {
         List<Dependency> dependencies = new ArrayList<>();
-        for (Dependency dependency : list) {
-            if(dependency.getDependency().contains("junit")) {
-                continue;
-            }
+        Map<String, Dependency> visited = new LinkedHashMap<>();
+        Deque<Dependency> queue = new ArrayDeque<>();
+        Deque<List<String>> exclusionQueue = new ArrayDeque<>();
+        visited.put(getKey(), this);
+        queue.add(this);
+        exclusionQueue.add(exclusions);
+        while (!queue.isEmpty()) {
+            Dependency dependency = queue.poll();
+            List<String> dependencyExclusions = exclusionQueue.poll();
+            dependency.clearDirectDependencies();
             InputStream in;
             if(dependency.isExternal()) {
                 ExternalDependency external = (ExternalDependency) dependency;
@@ -52,24 +66,28 @@ public abstract class Dependency {
                 throw new RuntimeException(e);
             }
             in.close();
-            if (model.getDependencies().isEmpty()) {
-                dependencies.add(dependency);
-            } else {
-                List<Dependency> subDependencies = new ArrayList<>();
-                for (org.apache.maven.model.Dependency mavenDependency : model.getDependencies()) {
-                    if(mavenDependency.getScope() != null && mavenDependency.getScope().equals("test")) {
-                        continue;
-                    }
-                    List<Dependency> list1 = new ArrayList<>();
-                    list1.addAll(subDependencies);
-                    list1.addAll(dependencies);
-                    list1.addAll(list);
-                    subDependencies.add(getDependencyInfo(mavenDependency, list1));
+            for (org.apache.maven.model.Dependency mavenDependency : model.getDependencies()) {
+                if(isPruned(mavenDependency, dependencyExclusions)) {
+                    continue;
+                }
+                String key = getGroupId(mavenDependency) + ":" + mavenDependency.getArtifactId();
+                if(visited.containsKey(key)) {
+                    dependency.addDirectDependency(visited.get(key));
+                    continue;
                 }
-                dependencies.addAll(subDependencies);
+                List<String> subExclusions = new ArrayList<>(dependencyExclusions);
+                for (Exclusion exclusion : mavenDependency.getExclusions()) {
+                    subExclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+                }
+                Dependency subDependency = getDependencyInfo(mavenDependency, new ArrayList<>(visited.values()));
+                visited.put(key, subDependency);
+                dependency.addDirectDependency(subDependency);
+                queue.add(subDependency);
+                exclusionQueue.add(subExclusions);
             }
+            dependencies.add(dependency);
         }
-        dependencies.addAll(list);
+        Collections.reverse(dependencies);
         return dependencies;
     }
 
@@ -81,9 +99,55 @@ public abstract class Dependency {
      * @throws XmlPullParserException If the XML file of the dependency cannot be parsed
      */
     public List<Dependency> getSubDependencies() throws XmlPullParserException, IOException {
-        List<Dependency> list = new ArrayList<>();
-        list.add(this);
-        return getSubDependencies(list);
+        return getSubDependencies(new String[0]);
+    }
+
+    /**
+     * Recursively retrieves all sub-dependencies of this dependency, skipping the ones that are
+     * not needed at runtime (test, provided and system scopes, optional dependencies and
+     * the exclusions declared in the POM files) as well as the ones matching the given exclusions.
+     * The sub-dependencies of a skipped dependency are never fetched.
+     * Like Maven, when several versions of the same artifact are found, the one nearest to this dependency wins.
+     *
+     * @param exclusions Exclusion patterns in the format of {@code groupId:artifactId}, {@code *} matches any value
+     * @return List of all sub-dependencies that need to be downloaded (including itself)
+     * @throws IOException            If unable to connect to the dependency's URL
+     * @throws XmlPullParserException If the XML file of the dependency cannot be parsed
+     */
+    public List<Dependency> getSubDependencies(String... exclusions) throws XmlPullParserException, IOException {
+        return collectSubDependencies(Arrays.asList(exclusions));
+    }
+
+    static boolean isPruned(org.apache.maven.model.Dependency mavenDependency, List<String> exclusions) {
+        String scope = mavenDependency.getScope();
+        if(scope != null && (scope.equals("test") || scope.equals("provided") || scope.equals("system"))) {
+            return true;
+        }
+        if(mavenDependency.isOptional()) {
+            return true;
+        }
+        String groupId = getGroupId(mavenDependency);
+        for (String exclusion : exclusions) {
+            String[] strings = exclusion.split(":");
+            if(matches(strings[0], groupId) && (strings.length < 2 || matches(strings[1], mavenDependency.getArtifactId()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean matches(String pattern, String value) {
+        if(pattern.equals("*")) {
+            return true;
+        }
+        if(pattern.contains("*")) {
+            return value.matches(Pattern.quote(pattern).replace("*", "\\E.*\\Q"));
+        }
+        return pattern.equals(value);
+    }
+
+    private static String getGroupId(org.apache.maven.model.Dependency mavenDependency) {
+        return mavenDependency.getGroupId().startsWith("${") ? mavenDependency.getArtifactId() : mavenDependency.getGroupId();
     }
 
     private Dependency getDependencyInfo(org.apache.maven.model.Dependency mavenDependency, List<Dependency> list1) throws IOException {
@@ -189,4 +253,32 @@ public abstract class Dependency {
     public String getDependency() {
         return dependency;
     }
+
+    /**
+     * Gets the dependencies this dependency directly needs at runtime, as resolved by the last call to
+     * {@link #getSubDependencies(String...)} that reached it.
+     * These are resolution state that every such call clears and fills again, and they are not thread-safe:
+     * concurrent calls reaching the same instance must be synchronized by the caller.
+     *
+     * @return Unmodifiable list of the direct dependencies, empty if none were resolved
+     */
+    public List<Dependency> getDirectDependencies() {
+        return Collections.unmodifiableList(directDependencies);
+    }
+
+    void addDirectDependency(Dependency dependency) {
+        directDependencies.add(dependency);
+    }
+
+    void clearDirectDependencies() {
+        directDependencies.clear();
+    }
+
+    String getKey() {
+        if(!isExternal()) {
+            return getDependency();
+        }
+        String[] strings = getDependency().split(":");
+        return strings[0] + ":" + strings[1];
+    }
 }
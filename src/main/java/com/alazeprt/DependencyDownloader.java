@@ -6,6 +6,8 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
 /**
@@ -45,6 +47,65 @@ public class DependencyDownloader {
         }
     }
 
+    /**
+     * Download all dependencies in the list into the specified store and link them into the specified folder.
+     * Dependencies that are already in the store are linked without being downloaded again.
+     * Each downloaded jar is verified against the SHA-1 checksum published next to it before being stored.
+     *
+     * @param list         All dependencies that need to be downloaded.
+     * @param outputFolder Location of the links to the dependencies.
+     * @param threads      How many threads to use for downloading each dependency.
+     * @param store        The store shared with other applications.
+     * @throws IOException When unable to connect to the download link of the dependency, when a downloaded jar
+     *                     does not match its checksum, or when unable to write to the store.
+     */
+    public static void downloadAll(List<Dependency> list, String outputFolder, int threads, DependencyStore store) throws IOException {
+        File folder = new File(outputFolder);
+        if(!folder.exists()) {
+            folder.mkdirs();
+        }
+        for(Dependency dependency : list) {
+            if(!dependency.isExternal()) {
+                continue;
+            }
+            String fileName = dependency.getDependency().split(":")[1] + "-" + dependency.getDependency().split(":")[2] + ".jar";
+            File blob = store.getFile(dependency);
+            if(blob == null) {
+                String fileUrl = ((ExternalDependency) dependency).parseDependency() + "/" + fileName;
+                String checksum = getPublishedChecksum(fileUrl + ".sha1");
+                blob = store.getFile(checksum);
+                if(blob == null) {
+                    System.out.println("Downloading " + fileName);
+                    File temp = store.createTempFile();
+                    try {
+                        downloadFiles(fileUrl, temp.getPath(), threads);
+                        blob = store.add(dependency, temp, checksum);
+                    } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(temp.toPath());
+                        throw e;
+                    }
+                } else {
+                    store.index(dependency, checksum);
+                }
+            }
+            store.link(blob, new File(folder, fileName));
+        }
+    }
+
+    private static String getPublishedChecksum(String checksumUrl) throws IOException {
+        URL url = new URL(checksumUrl);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        String response;
+        try (InputStream in = connection.getInputStream()) {
+            response = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        String checksum = response.split("\\s+")[0];
+        if(!checksum.matches("[0-9a-fA-F]{40}")) {
+            throw new IOException("Invalid checksum at " + checksumUrl + ": " + response);
+        }
+        return checksum;
+    }
+
     /**
      * Download the specified file from the given URL using multiple threads.
      *
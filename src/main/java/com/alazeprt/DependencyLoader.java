@@ -1,23 +1,36 @@
 package com.alazeprt;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Utility class for loading classes, constructing objects, and invoking methods with external dependencies.
+ * Call {@link #close()} when the dependencies are no longer needed, so that the jar files are released
+ * and the loaded classes can be unloaded.
  *
  * @author alazeprt
  */
-public class DependencyLoader {
-    private URLClassLoader classLoader;
+public class DependencyLoader implements AutoCloseable {
+    private static final Set<ClosedLoader> closedLoaders = new HashSet<>();
+    private static final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<>();
+    private final LibraryClassLoader classLoader;
+    private volatile boolean closed;
 
     /**
      * Creates a class loader based on the specified file.
@@ -27,18 +40,36 @@ public class DependencyLoader {
      * @throws MalformedURLException If the provided URL is malformed.
      */
     public DependencyLoader(String libPath, List<Dependency> list) throws MalformedURLException {
-        if(!libPath.endsWith("/") || !libPath.endsWith("\\")) {
-            libPath += "\\";
-        }
-        URL[] urls = new URL[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            if(list.get(i).isExternal()) {
-                urls[i] = new File(libPath + list.get(i).getDependency().split(":")[1] + "-" + list.get(i).getDependency().split(":")[2] + ".jar").toURI().toURL();
-            } else {
-                urls[i] = new URL(list.get(i).getDependency());
+        this.classLoader = new LibraryClassLoader(getUrls(libPath, list));
+    }
+
+    /**
+     * Creates a class loader based on the specified file, delegating to the given parent class loader.
+     *
+     * @param libPath The path to the directory containing external dependencies.
+     * @param list    List of Dependency instances representing external dependencies.
+     * @param parent  The parent class loader, usually one holding dependencies shared with other loaders.
+     * @throws MalformedURLException If the provided URL is malformed.
+     */
+    public DependencyLoader(String libPath, List<Dependency> list, ClassLoader parent) throws MalformedURLException {
+        this.classLoader = new LibraryClassLoader(getUrls(libPath, list), parent);
+    }
+
+    /**
+     * Creates a class loader reading the jars of the dependencies directly from the specified store.
+     *
+     * @param store The store containing the external dependencies.
+     * @param list  List of Dependency instances representing external dependencies.
+     * @throws IOException If a dependency is not in the store or the provided URL is malformed.
+     */
+    public DependencyLoader(DependencyStore store, List<Dependency> list) throws IOException {
+        this.classLoader = new LibraryClassLoader(getUrls(list, dependency -> {
+            File file = store.getFile(dependency);
+            if(file == null) {
+                throw new FileNotFoundException(dependency.getDependency() + " is not in the store");
             }
-        }
-        this.classLoader = new URLClassLoader(urls);
+            return file;
+        }));
     }
 
     /**
@@ -48,7 +79,7 @@ public class DependencyLoader {
      * @throws MalformedURLException If the provided URL is malformed.
      */
     public DependencyLoader(String libPath) throws MalformedURLException {
-        this.classLoader = new URLClassLoader(new URL[]{new File(libPath).toURI().toURL()});
+        this.classLoader = new LibraryClassLoader(new URL[]{new File(libPath).toURI().toURL()});
     }
 
     /**
@@ -63,6 +94,7 @@ public class DependencyLoader {
      * @throws InvocationTargetException If the constructor throws an exception.
      */
     public DependencyClass construct(String classname) throws ClassNotFoundException, InstantiationException, IllegalAccessException, NoSuchMethodException, InvocationTargetException {
+        ensureOpen();
         return new DependencyClass(classLoader.loadClass(classname).getDeclaredConstructor().newInstance());
     }
 
@@ -73,11 +105,8 @@ public class DependencyLoader {
      * @throws MalformedURLException If the provided URL is malformed.
      */
     public void loadMoreLibrary(String libPath) throws MalformedURLException {
-        URL[] currentUrls = classLoader.getURLs();
-        URL[] newUrls = new URL[currentUrls.length + 1];
-        System.arraycopy(currentUrls, 0, newUrls, 0, currentUrls.length);
-        newUrls[currentUrls.length] = new File(libPath).toURI().toURL();
-        this.classLoader = new URLClassLoader(newUrls);
+        ensureOpen();
+        classLoader.addLibrary(new File(libPath).toURI().toURL());
     }
 
     /**
@@ -93,6 +122,7 @@ public class DependencyLoader {
      * @throws InvocationTargetException If the constructor throws an exception.
      */
     public DependencyClass construct(String className, Object... args) throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
+        ensureOpen();
         Class<?> targetClass = classLoader.loadClass(className);
         Constructor<?> constructor = getCompatibleConstructor(targetClass, args);
         return new DependencyClass(constructor.newInstance(args));
@@ -106,6 +136,7 @@ public class DependencyLoader {
      * @throws ClassNotFoundException If the class is not found.
      */
     public Class<?> getLocalClass(String className) throws ClassNotFoundException {
+        ensureOpen();
         return classLoader.loadClass(className);
     }
 
@@ -123,6 +154,7 @@ public class DependencyLoader {
      */
     public Object runStaticMethod(String className, String methodName, Object... args)
             throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        ensureOpen();
         Class<?> targetClass = classLoader.loadClass(className);
 
         Method method = getConfirmMethod(targetClass, methodName, args);
@@ -149,6 +181,121 @@ public class DependencyLoader {
         return classLoader;
     }
 
+    /**
+     * Closes the underlying class loader, releasing the jar files it opened.
+     * The loader is then tracked until it is garbage collected, see {@link #getLeakedLoaders()}.
+     *
+     * @throws IOException If a jar file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        try {
+            closeClassLoader(classLoader);
+        } finally {
+            closed = true;
+        }
+    }
+
+    /**
+     * Checks whether this loader has been closed.
+     *
+     * @return Whether {@link #close()} has been called.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the class loaders that have been closed but are still reachable, and therefore cannot be unloaded.
+     * Loaders are only released by the garbage collector, so a loader closed shortly before may still be reported.
+     *
+     * @return The leaked class loaders with the roots found to be keeping them reachable.
+     */
+    public static List<LeakedLoader> getLeakedLoaders() {
+        List<LeakedLoader> leakedLoaders = new ArrayList<>();
+        synchronized (closedLoaders) {
+            removeCollectedLoaders();
+            for (ClosedLoader closedLoader : closedLoaders) {
+                ClassLoader loader = closedLoader.get();
+                if(loader != null) {
+                    leakedLoaders.add(new LeakedLoader(closedLoader.urls, getRoots(loader)));
+                }
+            }
+        }
+        return leakedLoaders;
+    }
+
+    static void closeClassLoader(URLClassLoader loader) throws IOException {
+        URL[] urls = loader.getURLs();
+        try {
+            loader.close();
+        } finally {
+            synchronized (closedLoaders) {
+                removeCollectedLoaders();
+                closedLoaders.add(new ClosedLoader(loader, urls));
+            }
+        }
+    }
+
+    static int getTrackedLoaderCount() {
+        synchronized (closedLoaders) {
+            return closedLoaders.size();
+        }
+    }
+
+    private static void removeCollectedLoaders() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = collectedLoaders.poll()) != null) {
+            closedLoaders.remove(reference);
+        }
+    }
+
+    private static List<String> getRoots(ClassLoader loader) {
+        List<String> roots = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(thread.getContextClassLoader() == loader) {
+                roots.add("Context class loader of thread \"" + thread.getName() + "\"");
+            }
+            if(thread.getClass().getClassLoader() == loader) {
+                roots.add("Thread \"" + thread.getName() + "\" of class " + thread.getClass().getName());
+            }
+        }
+        return roots;
+    }
+
+    private void ensureOpen() {
+        if(closed) {
+            throw new IllegalStateException("DependencyLoader has been closed");
+        }
+    }
+
+    static URL[] getUrls(String libPath, List<Dependency> list) throws MalformedURLException {
+        if(!libPath.endsWith("/") || !libPath.endsWith("\\")) {
+            libPath += "\\";
+        }
+        String folder = libPath;
+        return getUrls(list, dependency -> new File(folder + dependency.getDependency().split(":")[1] + "-" + dependency.getDependency().split(":")[2] + ".jar"));
+    }
+
+    private static <E extends Exception> URL[] getUrls(List<Dependency> list, JarLocator<E> locator) throws E, MalformedURLException {
+        URL[] urls = new URL[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            if(list.get(i).isExternal()) {
+                urls[i] = locator.locate(list.get(i)).toURI().toURL();
+            } else {
+                urls[i] = new URL(list.get(i).getDependency());
+            }
+        }
+        return urls;
+    }
+
+    private interface JarLocator<E extends Exception> {
+        File locate(Dependency dependency) throws E;
+    }
+
     private static final Map<Class<?>, Class<?>> primitiveToWrapperMap = new HashMap<>();
 
     static {
@@ -198,6 +345,61 @@ public class DependencyLoader {
         }
     }
 
+    private static class LibraryClassLoader extends URLClassLoader {
+        public LibraryClassLoader(URL[] urls) {
+            super(urls);
+        }
+
+        public LibraryClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        public void addLibrary(URL url) {
+            addURL(url);
+        }
+    }
+
+    private static class ClosedLoader extends WeakReference<ClassLoader> {
+        private final URL[] urls;
+
+        public ClosedLoader(ClassLoader loader, URL[] urls) {
+            super(loader, collectedLoaders);
+            this.urls = urls;
+        }
+    }
+
+    /**
+     * A class loader that has been closed but is still reachable.
+     */
+    public static class LeakedLoader {
+        private final URL[] urls;
+        private final List<String> roots;
+
+        private LeakedLoader(URL[] urls, List<String> roots) {
+            this.urls = urls;
+            this.roots = roots;
+        }
+
+        /**
+         * Gets the URLs the class loader was loading classes from.
+         *
+         * @return The URLs of the class loader.
+         */
+        public URL[] getUrls() {
+            return urls;
+        }
+
+        /**
+         * Gets the known roots keeping the class loader reachable, such as threads using it as their context class loader.
+         * Other references (static fields, caches, listeners) can only be found with a heap dump.
+         *
+         * @return Descriptions of the roots, empty if none were found.
+         */
+        public List<String> getRoots() {
+            return roots;
+        }
+    }
+
     static Constructor<?> getCompatibleConstructor(Class<?> targetClass, Object... args) {
         Constructor<?>[] constructors = targetClass.getConstructors();
         for (Constructor<?> constructor : constructors) {
@@ -0,0 +1,189 @@
+package com.alazeprt;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a class loader hierarchy for several dependency lists (for example one per plugin).
+ * Dependencies used by more than one list at the same version are loaded once by a shared parent class loader,
+ * and the remaining dependencies are loaded by a child {@link DependencyLoader} for each list.
+ * <p>
+ * A dependency whose groupId and artifactId are resolved to different versions by the lists is never shared,
+ * so that each list still sees its own version. A dependency is also only shared if all of its
+ * {@link Dependency#getDirectDependencies() direct dependencies} are shared, since classes in the parent class loader
+ * cannot see the ones in the child loaders.
+ * Closing the topology closes every loader it has built.
+ *
+ * @author alazeprt
+ */
+public class DependencyLoaderTopology implements AutoCloseable {
+    private final String libPath;
+    private final Map<String, List<Dependency>> lists = new LinkedHashMap<>();
+    private final Map<String, DependencyLoader> builtLoaders = new LinkedHashMap<>();
+    private URLClassLoader sharedClassLoader;
+
+    /**
+     * Initializes an empty topology.
+     *
+     * @param libPath The path to the directory containing external dependencies.
+     */
+    public DependencyLoaderTopology(String libPath) {
+        this.libPath = libPath;
+    }
+
+    /**
+     * Adds a dependency list to the topology.
+     *
+     * @param name The name of the list, such as the name of the plugin using it.
+     * @param list List of Dependency instances representing external dependencies.
+     * @return This topology.
+     */
+    public DependencyLoaderTopology add(String name, List<Dependency> list) {
+        lists.put(name, list);
+        return this;
+    }
+
+    /**
+     * Gets the dependencies that are loaded by the shared parent class loader.
+     *
+     * @return List of dependencies used by more than one list at the same version, whose own dependencies are shared as well.
+     */
+    public List<Dependency> getSharedDependencies() {
+        Map<String, Set<String>> versions = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Dependency> dependencies = new LinkedHashMap<>();
+        for (List<Dependency> list : lists.values()) {
+            Set<String> seen = new HashSet<>();
+            for (Dependency dependency : list) {
+                if(!seen.add(dependency.getDependency())) {
+                    continue;
+                }
+                versions.computeIfAbsent(dependency.getKey(), k -> new HashSet<>()).add(dependency.getDependency());
+                counts.merge(dependency.getDependency(), 1, Integer::sum);
+                dependencies.putIfAbsent(dependency.getDependency(), dependency);
+            }
+        }
+        Set<String> sharedNames = new HashSet<>();
+        for (Dependency dependency : dependencies.values()) {
+            if(counts.get(dependency.getDependency()) > 1 && versions.get(dependency.getKey()).size() == 1) {
+                sharedNames.add(dependency.getDependency());
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (List<Dependency> list : lists.values()) {
+                for (Dependency dependency : list) {
+                    if(!sharedNames.contains(dependency.getDependency())) {
+                        continue;
+                    }
+                    for (Dependency subDependency : dependency.getDirectDependencies()) {
+                        if(!sharedNames.contains(subDependency.getDependency())) {
+                            sharedNames.remove(dependency.getDependency());
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        List<Dependency> shared = new ArrayList<>();
+        for (Dependency dependency : dependencies.values()) {
+            if(sharedNames.contains(dependency.getDependency())) {
+                shared.add(dependency);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Creates the shared parent class loader and a child loader for each list.
+     * The loaders created by a previous call are closed first, and if creating a loader fails,
+     * the ones already created are closed before the exception is thrown.
+     *
+     * @return The child loaders, keyed by the names of their lists.
+     * @throws IOException If the previous loaders cannot be closed or the provided URL is malformed.
+     */
+    public Map<String, DependencyLoader> build() throws IOException {
+        close();
+        List<Dependency> shared = getSharedDependencies();
+        Set<String> sharedNames = new HashSet<>();
+        for (Dependency dependency : shared) {
+            sharedNames.add(dependency.getDependency());
+        }
+        this.sharedClassLoader = new URLClassLoader(DependencyLoader.getUrls(libPath, shared));
+        try {
+            for (Map.Entry<String, List<Dependency>> entry : lists.entrySet()) {
+                List<Dependency> unique = new ArrayList<>();
+                for (Dependency dependency : entry.getValue()) {
+                    if(!sharedNames.contains(dependency.getDependency())) {
+                        unique.add(dependency);
+                    }
+                }
+                builtLoaders.put(entry.getKey(), new DependencyLoader(libPath, unique, sharedClassLoader));
+            }
+        } catch (IOException e) {
+            try {
+                close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        return new LinkedHashMap<>(builtLoaders);
+    }
+
+    /**
+     * Closes the child loaders and the shared parent class loader built by this topology.
+     * Every loader is closed even if closing one of them fails.
+     *
+     * @throws IOException If a jar file cannot be closed, with the exceptions of the other loaders added as suppressed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (DependencyLoader loader : builtLoaders.values()) {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                if(exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        builtLoaders.clear();
+        if(sharedClassLoader != null) {
+            try {
+                DependencyLoader.closeClassLoader(sharedClassLoader);
+            } catch (IOException e) {
+                if(exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+            sharedClassLoader = null;
+        }
+        if(exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the shared parent class loader created by the last call to {@link #build()}.
+     *
+     * @return The shared URLClassLoader, or null if the topology has not been built yet or has been closed.
+     */
+    public URLClassLoader getSharedClassLoader() {
+        return sharedClassLoader;
+    }
+}
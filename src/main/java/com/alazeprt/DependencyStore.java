@@ -0,0 +1,196 @@
+package com.alazeprt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A content-addressed store of dependency jars shared by several applications on the same host.
+ * Each jar is saved once under its SHA-1 checksum (the one published next to it in Maven repositories),
+ * and an index maps the coordinates of a dependency to that checksum,
+ * so the lib folder of an application can be filled with links to the store without downloading anything again.
+ *
+ * @author alazeprt
+ */
+public class DependencyStore {
+    private final File root;
+
+    /**
+     * Initializes a store located in the specified folder.
+     *
+     * @param path The path to the folder of the store.
+     */
+    public DependencyStore(String path) {
+        this.root = new File(path);
+    }
+
+    /**
+     * Gets the stored jar of the specified dependency.
+     *
+     * @param dependency The external dependency.
+     * @return The jar file in the store, or null if the dependency has not been stored yet.
+     * @throws IOException If the index of the store cannot be read.
+     */
+    public File getFile(Dependency dependency) throws IOException {
+        Path index = getIndex(dependency);
+        if(!Files.exists(index)) {
+            return null;
+        }
+        File file = getBlob(Files.readString(index, StandardCharsets.UTF_8).trim());
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Creates a temporary file in the store to download a jar into before it is added.
+     *
+     * @return The temporary file.
+     * @throws IOException If the file cannot be created.
+     */
+    public File createTempFile() throws IOException {
+        File folder = new File(root, "tmp");
+        folder.mkdirs();
+        return File.createTempFile("download", ".jar", folder);
+    }
+
+    /**
+     * Gets the stored jar with the specified checksum.
+     *
+     * @param checksum The SHA-1 checksum of the jar.
+     * @return The jar file in the store, or null if no jar with this checksum has been stored yet.
+     */
+    public File getFile(String checksum) {
+        File file = getBlob(checksum.toLowerCase());
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Records in the index that the specified dependency is the stored jar with the specified checksum.
+     *
+     * @param dependency The external dependency.
+     * @param checksum   The SHA-1 checksum of a jar already in the store.
+     * @throws IOException If the index cannot be written.
+     */
+    public void index(Dependency dependency, String checksum) throws IOException {
+        Path index = getIndex(dependency);
+        Files.createDirectories(index.getParent());
+        Path temp = Files.createTempFile(index.getParent(), "index", ".tmp");
+        Files.writeString(temp, checksum.toLowerCase(), StandardCharsets.UTF_8);
+        move(temp, index);
+    }
+
+    /**
+     * Verifies a downloaded jar against its expected checksum, then moves it into the store and records it in the index.
+     * If the checksum does not match, the downloaded jar is deleted and nothing is stored.
+     * If a jar with the same checksum is already stored, the downloaded one is deleted.
+     *
+     * @param dependency       The external dependency the jar belongs to.
+     * @param jar              The downloaded jar, usually created by {@link #createTempFile()}.
+     * @param expectedChecksum The SHA-1 checksum published for the jar.
+     * @return The jar file in the store.
+     * @throws IOException If the checksum does not match, or the jar cannot be read or moved.
+     */
+    public File add(Dependency dependency, File jar, String expectedChecksum) throws IOException {
+        String checksum = getChecksum(jar);
+        if(!checksum.equalsIgnoreCase(expectedChecksum)) {
+            Files.delete(jar.toPath());
+            throw new IOException("Checksum mismatch for " + dependency.getDependency() + ": expected " + expectedChecksum + " but was " + checksum);
+        }
+        File blob = getBlob(checksum);
+        blob.getParentFile().mkdirs();
+        if(blob.exists()) {
+            Files.delete(jar.toPath());
+        } else {
+            move(jar.toPath(), blob.toPath());
+        }
+        index(dependency, checksum);
+        return blob;
+    }
+
+    /**
+     * Links a stored jar into the specified file, using a hard link if possible,
+     * then a symbolic link, and copying the jar otherwise.
+     * An existing file that is not the stored jar, such as a stale copy or a dangling link, is replaced.
+     *
+     * @param blob   The jar file in the store.
+     * @param target The file to create.
+     * @throws IOException If the jar cannot be linked or copied.
+     */
+    public void link(File blob, File target) throws IOException {
+        Path targetPath = target.getAbsoluteFile().toPath();
+        if(Files.exists(targetPath) && Files.isSameFile(targetPath, blob.toPath())) {
+            return;
+        }
+        Path temp = Files.createTempFile(targetPath.getParent(), target.getName(), ".link");
+        try {
+            Files.delete(temp);
+            createLink(temp, blob.getAbsoluteFile().toPath());
+            move(temp, targetPath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the folder of the store.
+     *
+     * @return The folder of the store.
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    private Path getIndex(Dependency dependency) {
+        String[] strings = dependency.getDependency().split(":");
+        return root.toPath().resolve("index").resolve(strings[0]).resolve(strings[1]).resolve(strings[2]);
+    }
+
+    private File getBlob(String checksum) {
+        return new File(root, "blobs/" + checksum.substring(0, 2) + "/" + checksum + ".jar");
+    }
+
+    private static void createLink(Path link, Path blob) throws IOException {
+        try {
+            Files.createLink(link, blob);
+            return;
+        } catch (IOException | UnsupportedOperationException ignored) {
+        }
+        try {
+            Files.createSymbolicLink(link, blob);
+            return;
+        } catch (IOException | UnsupportedOperationException ignored) {
+        }
+        Files.copy(blob, link);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String getChecksum(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,79 @@
+package com.alazeprt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyLoaderTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    void closeReleasesLoader() throws Exception {
+        DependencyLoader loader = new DependencyLoader(folder.toString());
+        assertFalse(loader.isClosed());
+        loader.close();
+        loader.close();
+        assertTrue(loader.isClosed());
+        assertThrows(IllegalStateException.class, () -> loader.getLocalClass("java.lang.String"));
+        assertThrows(IllegalStateException.class, () -> loader.loadMoreLibrary(folder.toString()));
+    }
+
+    @Test
+    void loadMoreLibraryKeepsClassLoader() throws Exception {
+        try (DependencyLoader loader = new DependencyLoader(folder.resolve("a").toString())) {
+            URLClassLoader classLoader = loader.getClassLoader();
+            loader.loadMoreLibrary(folder.resolve("b").toString());
+            assertSame(classLoader, loader.getClassLoader());
+            assertEquals(2, loader.getClassLoader().getURLs().length);
+        }
+    }
+
+    @Test
+    void forgetsCollectedLoadersWhenClosingOthers() throws Exception {
+        int before = DependencyLoader.getTrackedLoaderCount();
+        for (int i = 0; i < 1000; i++) {
+            new DependencyLoader(folder.toString()).close();
+        }
+        for (int i = 0; i < 50 && DependencyLoader.getTrackedLoaderCount() > before + 100; i++) {
+            System.gc();
+            Thread.sleep(20);
+            new DependencyLoader(folder.toString()).close();
+        }
+        assertTrue(DependencyLoader.getTrackedLoaderCount() <= before + 100);
+    }
+
+    @Test
+    void reportsLeakedLoaderWithThreadRoot() throws Exception {
+        DependencyLoader loader = new DependencyLoader(folder.toString());
+        URL[] urls = loader.getClassLoader().getURLs();
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException ignored) {
+            }
+        }, "leaking-thread");
+        thread.setContextClassLoader(loader.getClassLoader());
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            loader.close();
+            List<DependencyLoader.LeakedLoader> leakedLoaders = DependencyLoader.getLeakedLoaders();
+            assertTrue(leakedLoaders.stream().anyMatch(leakedLoader -> Arrays.equals(urls, leakedLoader.getUrls())
+                    && leakedLoader.getRoots().contains("Context class loader of thread \"leaking-thread\"")));
+        } finally {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.alazeprt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.MalformedURLException;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyLoaderTopologyTest {
+    private static Dependency dependency(String dependency, Dependency... directDependencies) {
+        Dependency result = new ExternalDependency(dependency);
+        for (Dependency directDependency : directDependencies) {
+            result.addDirectDependency(directDependency);
+        }
+        return result;
+    }
+
+    private static List<String> names(List<Dependency> list) {
+        return list.stream().map(Dependency::getDependency).toList();
+    }
+
+    @Test
+    void sharesDependenciesUsedAtTheSameVersion() {
+        DependencyLoaderTopology topology = new DependencyLoaderTopology("./libs/")
+                .add("A", List.of(dependency("com.google.code.gson:gson:2.10.1"), dependency("a:only:1.0")))
+                .add("B", List.of(dependency("com.google.code.gson:gson:2.10.1"), dependency("b:only:1.0")));
+        assertEquals(List.of("com.google.code.gson:gson:2.10.1"), names(topology.getSharedDependencies()));
+    }
+
+    @Test
+    void doesNotShareDifferentVersions() {
+        DependencyLoaderTopology topology = new DependencyLoaderTopology("./libs/")
+                .add("A", List.of(dependency("com.google.code.gson:gson:2.10.1")))
+                .add("B", List.of(dependency("com.google.code.gson:gson:2.10.1")))
+                .add("C", List.of(dependency("com.google.code.gson:gson:2.9.0")));
+        assertTrue(topology.getSharedDependencies().isEmpty());
+    }
+
+    @Test
+    void doesNotShareDependenciesWithUnsharedDependencies() {
+        Dependency failureAccessA = dependency("com.google.guava:failureaccess:1.0.1");
+        Dependency failureAccessB = dependency("com.google.guava:failureaccess:1.0.2");
+        DependencyLoaderTopology topology = new DependencyLoaderTopology("./libs/")
+                .add("A", List.of(failureAccessA, dependency("com.google.guava:guava:31.1-jre", failureAccessA)))
+                .add("B", List.of(failureAccessB, dependency("com.google.guava:guava:31.1-jre", failureAccessB)));
+        assertTrue(topology.getSharedDependencies().isEmpty());
+    }
+
+    @Test
+    void sharesDependenciesWithSharedDependencies() {
+        Dependency failureAccessA = dependency("com.google.guava:failureaccess:1.0.1");
+        Dependency failureAccessB = dependency("com.google.guava:failureaccess:1.0.1");
+        DependencyLoaderTopology topology = new DependencyLoaderTopology("./libs/")
+                .add("A", List.of(failureAccessA, dependency("com.google.guava:guava:31.1-jre", failureAccessA)))
+                .add("B", List.of(failureAccessB, dependency("com.google.guava:guava:31.1-jre", failureAccessB)));
+        assertEquals(List.of("com.google.guava:failureaccess:1.0.1", "com.google.guava:guava:31.1-jre"), names(topology.getSharedDependencies()));
+    }
+
+    @Test
+    void buildClosesPreviousLoaders(@TempDir Path folder) throws Exception {
+        DependencyLoaderTopology topology = new DependencyLoaderTopology(folder + "/")
+                .add("A", List.of(dependency("com.google.code.gson:gson:2.10.1")))
+                .add("B", List.of(dependency("com.google.code.gson:gson:2.10.1")));
+        Map<String, DependencyLoader> first = topology.build();
+        URLClassLoader firstShared = topology.getSharedClassLoader();
+        assertSame(firstShared, first.get("A").getClassLoader().getParent());
+        Map<String, DependencyLoader> second = topology.build();
+        assertTrue(first.get("A").isClosed());
+        assertTrue(first.get("B").isClosed());
+        assertFalse(second.get("A").isClosed());
+        assertNotSame(firstShared, topology.getSharedClassLoader());
+        topology.close();
+        assertTrue(second.get("A").isClosed());
+    }
+
+    @Test
+    void closesCreatedLoadersWhenBuildFails(@TempDir Path folder) throws Exception {
+        DependencyLoaderTopology topology = new DependencyLoaderTopology(folder + "/")
+                .add("A", List.of(dependency("com.google.code.gson:gson:2.10.1")))
+                .add("B", List.of(new LocalDependency(folder.resolve("local.jar").toString())));
+        assertThrows(MalformedURLException.class, topology::build);
+        assertNull(topology.getSharedClassLoader());
+    }
+
+    @Test
+    void directDependenciesCannotBeModified() {
+        Dependency dependency = dependency("com.google.guava:guava:31.1-jre", dependency("com.google.guava:failureaccess:1.0.1"));
+        assertThrows(UnsupportedOperationException.class, () -> dependency.getDirectDependencies().clear());
+        assertEquals(1, dependency.getDirectDependencies().size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.alazeprt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyStoreTest {
+    private static final String HELLO_SHA1 = "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void rejectsJarNotMatchingChecksum() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        Dependency dependency = new ExternalDependency("g:a:1.0");
+        File jar = store.createTempFile();
+        assertThrows(IOException.class, () -> store.add(dependency, jar, HELLO_SHA1));
+        assertFalse(jar.exists());
+        assertNull(store.getFile(dependency));
+    }
+
+    @Test
+    void storesJarUnderItsChecksum() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        Dependency dependency = new ExternalDependency("g:a:1.0");
+        File jar = store.createTempFile();
+        Files.writeString(jar.toPath(), "hello");
+        File blob = store.add(dependency, jar, HELLO_SHA1.toUpperCase());
+        assertEquals(HELLO_SHA1 + ".jar", blob.getName());
+        assertEquals(blob, store.getFile(dependency));
+        assertEquals(blob, store.getFile(HELLO_SHA1));
+        assertFalse(jar.exists());
+
+        Dependency other = new ExternalDependency("g:b:1.0");
+        store.index(other, HELLO_SHA1);
+        assertEquals(blob, store.getFile(other));
+    }
+
+    @Test
+    void linksStoredJar() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        File jar = store.createTempFile();
+        Files.writeString(jar.toPath(), "hello");
+        File blob = store.add(new ExternalDependency("g:a:1.0"), jar, HELLO_SHA1);
+        File target = folder.resolve("a-1.0.jar").toFile();
+        store.link(blob, target);
+        store.link(blob, target);
+        assertTrue(Files.isSameFile(blob.toPath(), target.toPath()));
+        assertEquals("hello", Files.readString(target.toPath()));
+    }
+
+    @Test
+    void replacesStaleFile() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        File jar = store.createTempFile();
+        Files.writeString(jar.toPath(), "hello");
+        File blob = store.add(new ExternalDependency("g:a:1.0"), jar, HELLO_SHA1);
+        File target = folder.resolve("a-1.0.jar").toFile();
+        Files.writeString(target.toPath(), "hel");
+        store.link(blob, target);
+        assertTrue(Files.isSameFile(blob.toPath(), target.toPath()));
+        assertEquals("hello", Files.readString(target.toPath()));
+        assertEquals(List.of("a-1.0.jar", "store"), Arrays.stream(folder.toFile().list()).sorted().toList());
+    }
+
+    @Test
+    void replacesDanglingSymbolicLink() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        File jar = store.createTempFile();
+        Files.writeString(jar.toPath(), "hello");
+        File blob = store.add(new ExternalDependency("g:a:1.0"), jar, HELLO_SHA1);
+        File target = folder.resolve("a-1.0.jar").toFile();
+        Files.createSymbolicLink(target.toPath(), folder.resolve("moved-store/a.jar"));
+        store.link(blob, target);
+        assertTrue(Files.isSameFile(blob.toPath(), target.toPath()));
+        assertEquals("hello", Files.readString(target.toPath()));
+    }
+
+    @Test
+    void loaderReadsFromStore() throws IOException {
+        DependencyStore store = new DependencyStore(folder.resolve("store").toString());
+        Dependency dependency = new ExternalDependency("g:a:1.0");
+        assertThrows(FileNotFoundException.class, () -> new DependencyLoader(store, List.of(dependency)));
+        File jar = store.createTempFile();
+        Files.writeString(jar.toPath(), "hello");
+        File blob = store.add(dependency, jar, HELLO_SHA1);
+        try (DependencyLoader loader = new DependencyLoader(store, List.of(dependency))) {
+            assertEquals(blob.toURI().toURL(), loader.getClassLoader().getURLs()[0]);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.alazeprt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyTest {
+    private static org.apache.maven.model.Dependency mavenDependency(String groupId, String artifactId, String scope) {
+        org.apache.maven.model.Dependency dependency = new org.apache.maven.model.Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        dependency.setScope(scope);
+        return dependency;
+    }
+
+    @Test
+    void prunesScopesNotNeededAtRuntime() {
+        assertTrue(Dependency.isPruned(mavenDependency("g", "a", "test"), List.of()));
+        assertTrue(Dependency.isPruned(mavenDependency("g", "a", "provided"), List.of()));
+        assertTrue(Dependency.isPruned(mavenDependency("g", "a", "system"), List.of()));
+        assertFalse(Dependency.isPruned(mavenDependency("g", "a", null), List.of()));
+        assertFalse(Dependency.isPruned(mavenDependency("g", "a", "compile"), List.of()));
+        assertFalse(Dependency.isPruned(mavenDependency("g", "a", "runtime"), List.of()));
+        assertFalse(Dependency.isPruned(mavenDependency("org.junit.platform", "junit-platform-launcher", "runtime"), List.of()));
+    }
+
+    @Test
+    void prunesOptionalDependencies() {
+        org.apache.maven.model.Dependency dependency = mavenDependency("g", "a", null);
+        dependency.setOptional(true);
+        assertTrue(Dependency.isPruned(dependency, List.of()));
+    }
+
+    @Test
+    void prunesExcludedDependencies() {
+        org.apache.maven.model.Dependency dependency = mavenDependency("org.slf4j", "slf4j-api", null);
+        assertTrue(Dependency.isPruned(dependency, List.of("org.slf4j:slf4j-api")));
+        assertTrue(Dependency.isPruned(dependency, List.of("org.slf4j:*")));
+        assertTrue(Dependency.isPruned(dependency, List.of("*:*")));
+        assertTrue(Dependency.isPruned(dependency, List.of("org.slf4j")));
+        assertFalse(Dependency.isPruned(dependency, List.of("org.slf4j:slf4j-simple")));
+        assertFalse(Dependency.isPruned(dependency, List.of("com.google.guava:*")));
+    }
+
+    @Test
+    void matchesWildcards() {
+        assertTrue(Dependency.matches("*", "anything"));
+        assertTrue(Dependency.matches("com.google.*", "com.google.guava"));
+        assertTrue(Dependency.matches("com.google.guava", "com.google.guava"));
+        assertFalse(Dependency.matches("com.google.*", "org.google.guava"));
+        assertFalse(Dependency.matches("com.google.guava", "comXgoogleXguava"));
+    }
+
+    @Test
+    void neverFetchesPrunedSubtrees(@TempDir Path folder) throws Exception {
+        Path pom = folder.resolve("pom.xml");
+        Files.writeString(pom, "<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>g</groupId><artifactId>root</artifactId><version>1.0</version><dependencies>"
+                + "<dependency><groupId>invalid.example</groupId><artifactId>tested</artifactId><version>1.0</version><scope>test</scope></dependency>"
+                + "<dependency><groupId>invalid.example</groupId><artifactId>optional</artifactId><version>1.0</version><optional>true</optional></dependency>"
+                + "<dependency><groupId>invalid.example</groupId><artifactId>excluded</artifactId><version>1.0</version></dependency>"
+                + "</dependencies></project>");
+        LocalDependency root = new LocalDependency(pom.toString());
+        List<Dependency> list = root.getSubDependencies("invalid.example:excluded");
+        assertEquals(1, list.size());
+        assertSame(root, list.get(0));
+    }
+}